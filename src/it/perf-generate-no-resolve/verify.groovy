@@ -0,0 +1 @@
+return evaluate(new File(perfSupportDir, "verify.groovy"))
@@ -0,0 +1 @@
+evaluate(new File(perfSupportDir, "setup.groovy"))
@@ -0,0 +1,142 @@
+/*
+ *  Copyright 2013-present, Stephen Colebourne
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+// Writes the synthetic modules listed in the project pom.
+// Each bean module holds 'joda.beans.perf.beans' ungenerated beans (default 500).
+// The 'probe' module records the measurements and must be listed last.
+
+int beanCount = Integer.getInteger('joda.beans.perf.beans', 500)
+def pom = new XmlSlurper().parse(new File(basedir, 'pom.xml'))
+String parentArtifactId = pom.artifactId.text()
+
+pom.modules.module*.text().each { String module ->
+  File moduleDir = new File(basedir, module)
+  moduleDir.mkdirs()
+  if (module == 'probe') {
+    new File(moduleDir, 'pom.xml').text = """<?xml version="1.0" encoding="UTF-8"?>
+<project xmlns="http://maven.apache.org/POM/4.0.0">
+  <modelVersion>4.0.0</modelVersion>
+  <parent>
+    <groupId>org.joda.it</groupId>
+    <artifactId>${parentArtifactId}</artifactId>
+    <version>1.0-SNAPSHOT</version>
+  </parent>
+  <artifactId>probe</artifactId>
+  <packaging>pom</packaging>
+  <build>
+    <plugins>
+      <plugin>
+        <groupId>org.codehaus.gmavenplus</groupId>
+        <artifactId>gmavenplus-plugin</artifactId>
+      </plugin>
+    </plugins>
+  </build>
+  <properties>
+    <joda.beans.skip>true</joda.beans.skip>
+  </properties>
+</project>
+"""
+    return
+  }
+
+  // the first bean of the first module is edited by the single-edit scenario
+  String editProfile = ''
+  if (module == pom.modules.module[0].text()) {
+    editProfile = """
+  <profiles>
+    <profile>
+      <id>perf-single-edit</id>
+      <build>
+        <plugins>
+          <plugin>
+            <groupId>org.apache.maven.plugins</groupId>
+            <artifactId>maven-antrun-plugin</artifactId>
+            <executions>
+              <execution>
+                <id>perf-edit</id>
+                <phase>initialize</phase>
+                <goals>
+                  <goal>run</goal>
+                </goals>
+                <configuration>
+                  <target>
+                    <replace file="src/main/java/perf/${javaPackage(module)}/Bean0.java" token="// perf-edit-marker">
+                      <replacevalue><![CDATA[@PropertyDefinition
+    private final String edited;]]></replacevalue>
+                    </replace>
+                  </target>
+                </configuration>
+              </execution>
+            </executions>
+          </plugin>
+        </plugins>
+      </build>
+    </profile>
+  </profiles>"""
+  }
+  new File(moduleDir, 'pom.xml').text = """<?xml version="1.0" encoding="UTF-8"?>
+<project xmlns="http://maven.apache.org/POM/4.0.0">
+  <modelVersion>4.0.0</modelVersion>
+  <parent>
+    <groupId>org.joda.it</groupId>
+    <artifactId>${parentArtifactId}</artifactId>
+    <version>1.0-SNAPSHOT</version>
+  </parent>
+  <artifactId>${module}</artifactId>${editProfile}
+</project>
+"""
+
+  // half the beans are main code, half are test code
+  String pkg = javaPackage(module)
+  for (int i = 0; i < beanCount; i++) {
+    String tree = (i % 2 == 0 ? 'main' : 'test')
+    File dir = new File(moduleDir, "src/${tree}/java/perf/${pkg}")
+    dir.mkdirs()
+    new File(dir, "Bean${i}.java").text = bean(pkg, "Bean${i}")
+  }
+}
+println "Wrote ${pom.modules.module.size() - 1} modules of ${beanCount} beans each"
+
+static String javaPackage(String module) {
+  return module.replace('-', '')
+}
+
+static String bean(String pkg, String name) {
+  return """package perf.${pkg};
+
+import java.util.List;
+
+import org.joda.beans.ImmutableBean;
+import org.joda.beans.gen.BeanDefinition;
+import org.joda.beans.gen.PropertyDefinition;
+
+/**
+ * Synthetic bean.
+ */
+@BeanDefinition
+public final class ${name} implements ImmutableBean {
+
+    @PropertyDefinition(validate = "notNull")
+    private final String name;
+    @PropertyDefinition
+    private final int count;
+    @PropertyDefinition(validate = "notNull")
+    private final List<String> tags;
+    // perf-edit-marker
+
+}
+"""
+}
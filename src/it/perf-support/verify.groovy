@@ -0,0 +1,113 @@
+/*
+ *  Copyright 2013-present, Stephen Colebourne
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+// Compares the scenarios recorded by the probe module against baseline.properties.
+// A scenario fails when it exceeds the baseline by more than 'joda.beans.perf.tolerance' (default 1.5).
+// Times may also exceed the baseline by 'joda.beans.perf.slackMillis' (default 2500), whichever is larger,
+// as a build of a few seconds varies by more than the tolerance between runs.
+// The warm-no-change scenario also fails unless every project skipped the goal, as nothing changed.
+// Run with '-Djoda.beans.perf.updateBaseline' to store the measured values as the new baseline.
+// Run again with '-Djoda.beans.perf.updateBaseline=max' to keep the larger of the stored and measured values,
+// so that a baseline recorded over several runs allows for the variation between runs.
+
+String[] scenarios = ['cold', 'warm-no-change', 'single-edit']
+String[] metrics = ['moduleMillis', 'peakHeapMB']
+double tolerance = Double.parseDouble(System.getProperty('joda.beans.perf.tolerance', '1.5'))
+long slackMillis = Long.parseLong(System.getProperty('joda.beans.perf.slackMillis', '2500'))
+String updateMode = System.getProperty('joda.beans.perf.updateBaseline')
+boolean update = updateMode != null
+boolean updateMax = updateMode == 'max'
+
+File baselineFile = new File(perfSupportDir, 'baseline.properties')
+Properties baseline = new Properties()
+if (baselineFile.exists()) {
+  baselineFile.withInputStream { baseline.load(it) }
+}
+
+// finds the projects that did not skip the goal in each scenario, from the log of all the invocations
+Map<String, List<String>> notSkipped = [:]
+List<String> pending = []
+String current = null
+boolean skipped = false
+new File(basedir, 'build.log').eachLine { String line ->
+  def building = line =~ /^\[INFO\] Building (\S+) \S+\s+\[\d+\/\d+\]/
+  def recorded = line =~ /^\[INFO\] Scenario (\S+):/
+  boolean isBuilding = building.find()
+  boolean isRecorded = recorded.find()
+  if (isBuilding || isRecorded) {
+    if (current != null && current != 'probe' && !skipped) {
+      pending << current
+    }
+    current = (isBuilding ? building.group(1) : null)
+    skipped = false
+    if (isRecorded) {
+      notSkipped[recorded.group(1)] = pending
+    }
+  } else if (line.contains('No files changed since the last run')) {
+    skipped = true
+  } else if (line.startsWith('[INFO] BUILD ')) {
+    pending = []
+    current = null
+  }
+}
+
+boolean ok = true
+List<String> warmNotSkipped = notSkipped['warm-no-change']
+if (warmNotSkipped != null && !warmNotSkipped.isEmpty()) {
+  println "[${basedir.name}] warm-no-change: goal was not skipped in ${warmNotSkipped.join(', ')} REGRESSED"
+  ok = false
+}
+for (String scenario : scenarios) {
+  File resultFile = new File(basedir, "target/perf/${scenario}.properties")
+  if (!resultFile.exists()) {
+    println "[${basedir.name}] ${scenario}: no result recorded"
+    ok = false
+    continue
+  }
+  Properties result = new Properties()
+  resultFile.withInputStream { result.load(it) }
+  for (String metric : metrics) {
+    String key = "${basedir.name}.${scenario}.${metric}"
+    long measured = Long.parseLong(result.getProperty(metric))
+    String expectedStr = baseline.getProperty(key)
+    if (update) {
+      long stored = (updateMax && expectedStr != null ? Math.max(measured, Long.parseLong(expectedStr)) : measured)
+      baseline.setProperty(key, String.valueOf(stored))
+      println "[${basedir.name}] ${scenario}: ${metric}=${measured} (baseline updated to ${stored})"
+    } else if (expectedStr == null) {
+      println "[${basedir.name}] ${scenario}: ${metric}=${measured} (no baseline)"
+    } else {
+      long expected = Long.parseLong(expectedStr)
+      long limit = (long) (expected * tolerance)
+      if (metric.endsWith('Millis')) {
+        limit = Math.max(limit, expected + slackMillis)
+      }
+      boolean regressed = measured > limit
+      println "[${basedir.name}] ${scenario}: ${metric}=${measured}, baseline=${expectedStr}, limit=${limit}" +
+          (regressed ? ' REGRESSED' : '')
+      ok &= !regressed
+    }
+  }
+}
+
+if (update) {
+  // sort the keys so that the stored file diffs cleanly
+  baselineFile.withWriter('ISO-8859-1') { out ->
+    out.writeLine('# Baseline for the end-to-end performance tests, see src/it/perf-support/verify.groovy')
+    baseline.stringPropertyNames().sort().each { out.writeLine("${it}=${baseline.getProperty(it)}") }
+  }
+}
+return ok
@@ -16,8 +16,21 @@
 package org.joda.beans.maven;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -29,86 +42,234 @@ import org.sonatype.plexus.build.incremental.BuildContext;
  */
 public abstract class AbstractJodaBeansGenerateMojo extends AbstractJodaBeansMojo {
 
-    private static final String[] EMPTY_STRING_ARRAY = new String[0];
-
     //-----------------------------------------------------------------------
     @Override
-    protected void runTool(
+    protected boolean runTool(
             Class<?> toolClass,
             List<String> argsList,
             BuildContext buildContext) throws MojoExecutionException, MojoFailureException {
 
         // only match java files that have changed according to the build context
         // this avoids processing when there is nothing to do
-        String[] changedSourceFiles = findFiles(buildContext, getSourceDir());
-        String[] changedTestFiles = findFiles(buildContext, getTestSourceDir());
-        int sourceFilesChanged = changedSourceFiles.length;
-        int testFilesChanged = changedTestFiles.length;
+        List<File> sourceRoots = getSourceRoots();
+        List<File> testRoots = getTestSourceRoots();
+        List<File> allRoots = new ArrayList<>(sourceRoots);
+        allRoots.addAll(testRoots);
+        Map<File, String[]> changedFiles = findFiles(buildContext, allRoots);
+        int sourceFilesChanged = countFiles(changedFiles, sourceRoots);
+        int testFilesChanged = countFiles(changedFiles, testRoots);
 
         // if nothing to do then exit
         if (sourceFilesChanged == 0 && testFilesChanged == 0) {
             logInfo("No files changed");
-            return;
+            return true;
         }
         logDebug("Files changed: main=" + sourceFilesChanged + ", test=" + testFilesChanged);
 
-        logInfo("Joda-Bean generator started, directory: " + getSourceDir() +
-                (getTestSourceDir().length() == 0 ? "" : ", test directory: " + getTestSourceDir()));
+        logInfo("Joda-Bean generator started, directory: " + join(sourceRoots) +
+                (testRoots.isEmpty() ? "" : ", test directory: " + join(testRoots)));
 
         // invoke main source
+        GenerationScheduler scheduler = loadScheduler();
+        boolean allChanged = !buildContext.isIncremental();
         int changedFileCount = 0;
-        if (sourceFilesChanged > 0) {
-            File sourceDir = new File(getSourceDir());
-            File classesDir = new File(getClassesDir());
-            for (String changedFile : changedSourceFiles) {
-                buildContext.removeMessages(new File(sourceDir, changedFile));
-            }
+        File classesDir = new File(getClassesDir());
+        for (File sourceDir : sourceRoots) {
+            changedFileCount += runRoot(
+                    toolClass, argsList, scheduler, allChanged, sourceDir, classesDir, changedFiles.get(sourceDir), "");
+        }
+        // optionally invoke test source
+        File testClassesDir = new File(getTestClassesDir());
+        for (File sourceDir : testRoots) {
+            changedFileCount += runRoot(
+                    toolClass, argsList, scheduler, allChanged, sourceDir, testClassesDir, changedFiles.get(sourceDir), " test");
+        }
+        saveScheduler(scheduler);
+
+        logInfo("Joda-Bean generator completed, " + changedFileCount + " changed files");
+        return true;
+    }
+
+    // invoke the tool on one source root, processing the files or the whole root, whichever is expected to be faster
+    private int runRoot(
+            Class<?> toolClass,
+            List<String> argsList,
+            GenerationScheduler scheduler,
+            boolean allChanged,
+            File sourceDir,
+            File classesDir,
+            String[] changedSourceFiles,
+            String desc) throws MojoExecutionException, MojoFailureException {
+
+        if (changedSourceFiles.length == 0) {
+            return 0;
+        }
+        int batches = scheduler.plan(sourceDir, changedSourceFiles.length, allChanged);
+        removeMessages(sourceDir, changedSourceFiles, batches == GenerationScheduler.DIRECTORY);
+        // costs are only recorded if this root succeeded
+        int messageCount = messageCount();
+        long start = System.nanoTime();
+        List<File> changed;
+        if (batches == GenerationScheduler.DIRECTORY) {
             List<String> args = new ArrayList<>(argsList);
-            if (sourceFilesChanged == 1) {
-                File file = new File(sourceDir, changedSourceFiles[0]);
-                args.add(file.toString());
-                logDebug("Single file: " + args.get(args.size() - 1));
-                changedFileCount += runToolHandleChanges(toolClass, args, sourceDir, classesDir).size();
+            args.add(sourceDir.toString());
+            logDebug("All" + desc + " files: " + args.get(args.size() - 1));
+            changed = runToolHandleChanges(toolClass, args, sourceDir, classesDir);
+            long millis = elapsedMillis(start);
+            if (messageCount() == messageCount) {
+                // the size of the root is known from the walk of all files or the manifest, otherwise the last size is used
+                int rootFiles = (allChanged ? changedSourceFiles.length : rootFileCount(sourceDir));
+                scheduler.recordDirectory(sourceDir, rootFiles, millis);
+            }
+        } else {
+            if (changedSourceFiles.length == 1) {
+                logDebug("Single" + desc + " file: " + new File(sourceDir, changedSourceFiles[0]));
             } else {
-                args.add(getSourceDir());
-                logDebug("All files: " + args.get(args.size() - 1));
-                changedFileCount += runToolHandleChanges(toolClass, args, sourceDir, classesDir).size();
+                logDebug("Changed" + desc + " files: " + changedSourceFiles.length + " in " + batches + " batches: " + sourceDir);
+            }
+            changed = runFiles(toolClass, argsList, sourceDir, classesDir, changedSourceFiles, batches);
+            if (messageCount() == messageCount) {
+                scheduler.recordFiles(changedSourceFiles.length, batches, elapsedMillis(start));
             }
         }
-        // optionally invoke test source
-        if (testFilesChanged > 0) {
-            File sourceDir = new File(getTestSourceDir());
-            File classesDir = new File(getTestClassesDir());
-            for (String changedFile : changedTestFiles) {
-                buildContext.removeMessages(new File(sourceDir, changedFile));
+        return changed.size();
+    }
+
+    // invoke the tool on the files, with the batches running in parallel
+    // the build context is only used on this thread, once all the batches are complete
+    private List<File> runFiles(
+            Class<?> toolClass,
+            List<String> argsList,
+            File sourceDir,
+            File classesDir,
+            String[] changedSourceFiles,
+            int batches) throws MojoExecutionException, MojoFailureException {
+
+        List<Callable<List<File>>> tasks = new ArrayList<>();
+        for (int i = 0; i < batches; i++) {
+            int batch = i;
+            List<File> files = new ArrayList<>();
+            for (int j = batch; j < changedSourceFiles.length; j += batches) {
+                files.add(new File(sourceDir, changedSourceFiles[j]));
             }
-            List<String> args = new ArrayList<>(argsList);
-            if (testFilesChanged == 1) {
-                File file = new File(sourceDir, changedTestFiles[0]);
-                args.add(file.toString());
-                logDebug("Single test file: " + args.get(args.size() - 1));
-                changedFileCount += runToolHandleChanges(toolClass, args, sourceDir, classesDir).size();
+            tasks.add(() -> invokeFiles(toolClass, argsList, files));
+        }
+        List<File> changed = new ArrayList<>();
+        MojoFailureException failure = null;
+        try {
+            List<Future<List<File>>> results;
+            if (batches == 1) {
+                FutureTask<List<File>> task = new FutureTask<>(tasks.get(0));
+                task.run();
+                results = Collections.singletonList(task);
             } else {
-                args.add(getTestSourceDir());
-                logDebug("All test files: " + args.get(args.size() - 1));
-                changedFileCount += runToolHandleChanges(toolClass, args, sourceDir, classesDir).size();
+                ExecutorService executor = Executors.newFixedThreadPool(batches);
+                try {
+                    results = executor.invokeAll(tasks);
+                } finally {
+                    executor.shutdown();
+                }
+            }
+            for (Future<List<File>> result : results) {
+                try {
+                    changed.addAll(result.get());
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof MojoFailureException) {
+                        failure = (failure == null ? (MojoFailureException) ex.getCause() : failure);
+                    } else if (ex.getCause() instanceof MojoExecutionException) {
+                        throw (MojoExecutionException) ex.getCause();
+                    } else {
+                        throw new MojoExecutionException("Error running Joda-Beans tool: " + ex.getCause(), ex.getCause());
+                    }
+                }
             }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while running Joda-Beans tool", ex);
+        }
+        // the files changed before any failure are still handled
+        handleChanges(changed, sourceDir, classesDir);
+        if (failure != null) {
+            return handleToolFailure(failure);
         }
+        return changed;
+    }
 
-        logInfo("Joda-Bean generator completed, " + changedFileCount + " changed files");
+    // loads the costs of earlier runs
+    private GenerationScheduler loadScheduler() throws MojoExecutionException {
+        try {
+            return GenerationScheduler.load(
+                    new File(getStateDir(), "schedule.properties"), Runtime.getRuntime().availableProcessors());
+        } catch (IOException ex) {
+            throw new MojoExecutionException("IO problem: " + ex.toString(), ex);
+        }
+    }
+
+    // saves the costs for later runs
+    private void saveScheduler(GenerationScheduler scheduler) throws MojoExecutionException {
+        try {
+            scheduler.save();
+        } catch (IOException ex) {
+            throw new MojoExecutionException("IO problem: " + ex.toString(), ex);
+        }
+    }
+
+    // the elapsed time in milliseconds
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1000000L;
+    }
+
+    // find Java files in each root
+    private Map<File, String[]> findFiles(BuildContext buildContext, List<File> roots) throws MojoExecutionException {
+        if (!buildContext.isIncremental()) {
+            return walkFiles(roots);
+        }
+        // the scanners are obtained on this thread, as the build context may be bound to it, then run concurrently
+        Map<File, Scanner> scanners = new LinkedHashMap<>();
+        for (File root : roots) {
+            Scanner scanner = buildContext.newScanner(root);
+            scanner.setIncludes(new String[] {"**/*.java"});
+            scanners.put(root, scanner);
+        }
+        Map<File, String[]> changedFiles = new ConcurrentHashMap<>();
+        scanners.entrySet().parallelStream().forEach(entry -> {
+            Scanner scanner = entry.getValue();
+            scanner.scan();
+            changedFiles.put(entry.getKey(), scanner.getIncludedFiles());
+        });
+        return changedFiles;
+    }
+
+    // find all Java files in each root, used when every file counts as changed
+    // this walks the roots concurrently
+    private Map<File, String[]> walkFiles(List<File> roots) throws MojoExecutionException {
+        Map<File, String[]> files = new ConcurrentHashMap<>();
+        try {
+            roots.parallelStream().forEach(root -> files.put(root, walkFiles(root.toPath())));
+        } catch (UncheckedIOException ex) {
+            throw new MojoExecutionException("IO problem: " + ex.getCause().toString(), ex.getCause());
+        }
+        return files;
+    }
+
+    // find all Java files in a root, returning paths relative to the root
+    private static String[] walkFiles(Path root) {
+        List<String> found = new ArrayList<>();
+        try {
+            walkJavaFiles(root, (file, attrs) -> found.add(root.relativize(file).toString()));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return found.toArray(new String[found.size()]);
     }
 
-    // find Java files
-    private String[] findFiles(BuildContext buildContext, String dirStr) {
-        File dir = new File(dirStr);
-        if (dirStr.isEmpty() || !dir.exists()) {
-            return EMPTY_STRING_ARRAY;
+    // count the files changed in the roots
+    private static int countFiles(Map<File, String[]> changedFiles, List<File> roots) {
+        int count = 0;
+        for (File root : roots) {
+            count += changedFiles.get(root).length;
         }
-        Scanner scanner = buildContext.newScanner(dir);
-        scanner.setIncludes(new String[] {"**/*.java"});
-        scanner.scan();
-        String[] changedSourceFiles = scanner.getIncludedFiles();
-        return changedSourceFiles;
+        return count;
     }
 
 }
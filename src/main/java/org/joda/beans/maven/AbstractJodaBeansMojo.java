@@ -17,27 +17,44 @@ package org.joda.beans.maven;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.math.BigInteger;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.SelectorUtils;
 import org.sonatype.plexus.build.incremental.BuildContext;
 
 /**
@@ -46,9 +63,9 @@ import org.sonatype.plexus.build.incremental.BuildContext;
 public abstract class AbstractJodaBeansMojo extends AbstractMojo {
 
     /**
-     * Key for clearing messages.
+     * Key for the set of files that have messages, used to clear them.
      */
-    private static final String JODA_BEANS_MESSAGE_FILE = "joda-beans.message.file";
+    private static final String JODA_BEANS_MESSAGE_FILES = "joda-beans.message.files";
     /**
      * Key for clearing messages.
      */
@@ -91,12 +108,41 @@ public abstract class AbstractJodaBeansMojo extends AbstractMojo {
     @Parameter(alias = "testClassesDir", property = "joda.beans.test.classes.dir", defaultValue = "${project.build.testOutputDirectory}", required = true, readonly = true)
     private String testClassesDir;
 
+    @Parameter(alias = "sourceRootIncludes", property = "joda.beans.source.root.includes")
+    private List<String> sourceRootIncludes;
+
+    @Parameter(alias = "sourceRootExcludes", property = "joda.beans.source.root.excludes")
+    private List<String> sourceRootExcludes;
+
+    @Parameter(alias = "skipIfUnchanged", property = "joda.beans.skipIfUnchanged", defaultValue = "true")
+    private boolean skipIfUnchanged;
+
+    @Parameter(defaultValue = "${mojoExecution}", required = true, readonly = true)
+    private MojoExecution mojoExecution;
+
     @Parameter(alias = "project", defaultValue = "${project}", required = true, readonly = true)
     private MavenProject project;
 
     @Component
     private BuildContext buildContext;
 
+    /**
+     * The messages to add once the tool has run.
+     */
+    private final List<Message> messages = Collections.synchronizedList(new ArrayList<>());
+    /**
+     * The files with messages from the last run that have not been removed, null if not known.
+     */
+    private Set<File> lastMessageFiles;
+    /**
+     * The files with messages once the tool has run.
+     */
+    private Set<File> messageFiles = Collections.emptySet();
+    /**
+     * The number of Java files in each root, found when building the manifest.
+     */
+    private final Map<File, Integer> rootFileCounts = new HashMap<>();
+
     //-----------------------------------------------------------------------
     /**
      * Gets the source directory.
@@ -134,6 +180,111 @@ public abstract class AbstractJodaBeansMojo extends AbstractMojo {
         return (testClassesDir == null ? "" : testClassesDir.trim());
     }
 
+    /**
+     * Gets the directory where state is kept between runs.
+     * 
+     * @return the state directory, not null
+     */
+    protected File getStateDir() {
+        return new File(project.getBuild().getDirectory(), "joda-beans");
+    }
+
+    /**
+     * Gets the source roots to process.
+     * <p>
+     * This is the source directory followed by the compile source roots of the project,
+     * such as those added by other generators, filtered by the includes and excludes.
+     * A source directory other than the default replaces the default, rather than adding to it.
+     * 
+     * @return the existing source roots, not null
+     */
+    protected List<File> getSourceRoots() {
+        return findSourceRoots(
+                project.getBasedir(),
+                getSourceDir(),
+                project.getBuild().getSourceDirectory(),
+                project.getCompileSourceRoots(),
+                sourceRootIncludes,
+                sourceRootExcludes);
+    }
+
+    /**
+     * Gets the test source roots to process.
+     * <p>
+     * This is the test source directory followed by the test compile source roots of the project,
+     * filtered by the includes and excludes.
+     * 
+     * @return the existing test source roots, not null
+     */
+    protected List<File> getTestSourceRoots() {
+        return findSourceRoots(
+                project.getBasedir(),
+                getTestSourceDir(),
+                project.getBuild().getTestSourceDirectory(),
+                project.getTestCompileSourceRoots(),
+                sourceRootIncludes,
+                sourceRootExcludes);
+    }
+
+    // finds the existing source roots, matching patterns against the path relative to the project
+    // a root inside another root is dropped, as its files are processed as part of the outer root
+    static List<File> findSourceRoots(
+            File baseDir,
+            String dirStr,
+            String defaultDirStr,
+            List<String> projectRoots,
+            List<String> includes,
+            List<String> excludes) {
+
+        Set<Path> candidates = new LinkedHashSet<>();
+        Path dir = (dirStr.length() > 0 ? toPath(dirStr) : null);
+        Path defaultDir = (defaultDirStr != null && defaultDirStr.length() > 0 ? toPath(defaultDirStr) : null);
+        if (dir != null) {
+            candidates.add(dir);
+        }
+        boolean explicitDir = (dir != null && !dir.equals(defaultDir));
+        for (String root : projectRoots) {
+            Path path = toPath(root);
+            if (!explicitDir || !path.equals(defaultDir)) {
+                candidates.add(path);
+            }
+        }
+        Path base = baseDir.getAbsoluteFile().toPath().normalize();
+        List<Path> matched = new ArrayList<>();
+        for (Path root : candidates) {
+            String path = (root.startsWith(base) ? base.relativize(root).toString() : root.toString());
+            if (Files.isDirectory(root) && matchesAny(includes, path, true) && !matchesAny(excludes, path, false)) {
+                matched.add(root);
+            }
+        }
+        List<File> roots = new ArrayList<>();
+        for (Path root : matched) {
+            if (matched.stream().noneMatch(other -> !other.equals(root) && root.startsWith(other))) {
+                roots.add(root.toFile());
+            }
+        }
+        return roots;
+    }
+
+    // converts a root to an absolute path
+    private static Path toPath(String root) {
+        return new File(root.trim()).getAbsoluteFile().toPath().normalize();
+    }
+
+    // checks if the path matches any of the patterns
+    static boolean matchesAny(List<String> patterns, String path, boolean matchIfEmpty) {
+        if (patterns == null || patterns.isEmpty()) {
+            return matchIfEmpty;
+        }
+        for (String pattern : patterns) {
+            String normalized = pattern.trim().replace('/', File.separatorChar).replace('\\', File.separatorChar);
+            if (SelectorUtils.matchPath(normalized, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     //-----------------------------------------------------------------------
     /**
      * Executes the Joda-Beans generator.
@@ -150,6 +301,21 @@ public abstract class AbstractJodaBeansMojo extends AbstractMojo {
             if (getSourceDir().length() == 0) {
                 throw new MojoExecutionException("Source directory must be specified");
             }
+            List<String> argsList = buildArgs();
+            File manifestFile = null;
+            List<String> generator = null;
+            if (skipIfUnchanged) {
+                // a matching manifest means the last successful run had the same inputs
+                manifestFile = new File(getStateDir(), mojoExecution.getGoal() + "-" + mojoExecution.getExecutionId() + ".manifest");
+                generator = describeGenerator();
+                List<String> manifest = buildManifest(argsList, generator);
+                if (manifest.equals(readManifest(manifestFile))) {
+                    logInfo("No files changed since the last run");
+                    return;
+                }
+                deleteManifest(manifestFile);
+            }
+
             ClassLoader classLoader = obtainClassLoader();
             Class<?> toolClass = null;
             try {
@@ -158,9 +324,19 @@ public abstract class AbstractJodaBeansMojo extends AbstractMojo {
                 logInfo("Skipping as joda-beans is not in the project compile classpath");
                 return;
             }
-    
-            List<String> argsList = buildArgs();
-            runTool(toolClass, argsList, buildContext);
+
+            loadMessageFiles();
+            boolean upToDate;
+            try {
+                upToDate = runTool(toolClass, argsList, buildContext);
+            } finally {
+                addMessages();
+            }
+            // the manifest is built again, as generation changes the source files
+            // a file with a message from this or an earlier run means the sources are not up to date
+            if (upToDate && messageFiles.isEmpty() && manifestFile != null) {
+                writeManifest(manifestFile, buildManifest(argsList, generator));
+            }
         } finally {
             long end = System.nanoTime();
             logDebug("Took: " + ((end - start) / 1000000L) + "ms");
@@ -196,25 +372,252 @@ public abstract class AbstractJodaBeansMojo extends AbstractMojo {
         return argsList;
     }
 
-    // runs the tool
-    abstract void runTool(Class<?> toolClass, List<String> argsList, BuildContext buildContext) throws MojoExecutionException, MojoFailureException;
+    // runs the tool, returning true if the sources are up to date afterwards
+    abstract boolean runTool(Class<?> toolClass, List<String> argsList, BuildContext buildContext) throws MojoExecutionException, MojoFailureException;
+
+    /**
+     * Describes the generator that will be used, for the manifest.
+     * <p>
+     * This is the path, size and last modified time of each Joda classpath entry,
+     * or of the files within it for a directory, such as the output of another module holding a config file.
+     * The output directories of this project are not included, as they change on every compile.
+     * 
+     * @return the description, not null
+     * @throws MojoExecutionException if an error occurs
+     */
+    protected List<String> describeGenerator() throws MojoExecutionException {
+        Set<File> outputDirs = new HashSet<>();
+        outputDirs.add(normalize(new File(getClassesDir())));
+        outputDirs.add(normalize(new File(getTestClassesDir())));
+        List<String> desc = new ArrayList<>();
+        for (String classpathEntry : obtainClasspath()) {
+            File f = new File(classpathEntry);
+            if (f.exists() && f.getPath().contains("joda") && !outputDirs.contains(normalize(f))) {
+                desc.add("classpath=" + describeClasspathEntry(f));
+            }
+        }
+        return desc;
+    }
 
-    // remove any error markers leftover from the last run
-    void cleanupLastRun() {
-        File errorFile = (File) buildContext.getValue(JODA_BEANS_MESSAGE_FILE);
-        if (errorFile != null) {
-            buildContext.removeMessages(errorFile);
+    // describes a classpath entry, digesting the files within a directory
+    static String describeClasspathEntry(File entry) throws MojoExecutionException {
+        if (entry.isDirectory()) {
+            return entry + "|" + digestFiles(entry.toPath(), "");
         }
+        return entry + "|" + entry.length() + "|" + entry.lastModified();
+    }
+
+    // builds the manifest of the inputs to the tool
+    private List<String> buildManifest(List<String> argsList, List<String> generator) throws MojoExecutionException {
+        List<String> manifest = new ArrayList<>();
+        manifest.add("plugin=" + mojoExecution.getMojoDescriptor().getPluginDescriptor().getVersion());
+        for (String arg : argsList) {
+            manifest.add("arg=" + arg);
+        }
+        manifest.addAll(generator);
+        List<File> roots = new ArrayList<>(getSourceRoots());
+        roots.addAll(getTestSourceRoots());
+        for (File root : roots) {
+            String digest = digestRoot(root.toPath());
+            // the digest starts with the number of files, which is kept to avoid walking the root again
+            rootFileCounts.put(root, Integer.parseInt(digest.substring(0, digest.indexOf('|'))));
+            manifest.add("root=" + root + "|" + digest);
+        }
+        return manifest;
+    }
+
+    // gets the number of Java files in the root found when building the manifest, negative if not known
+    int rootFileCount(File root) {
+        Integer count = rootFileCounts.get(root);
+        return (count == null ? -1 : count);
+    }
+
+    // digests the path, size and last modified time of each Java file in the root
+    static String digestRoot(Path root) throws MojoExecutionException {
+        return digestFiles(root, ".java");
+    }
+
+    // digests the path, size and last modified time of each file with the suffix in the root
+    private static String digestFiles(Path root, String suffix) throws MojoExecutionException {
+        try {
+            List<String> entries = new ArrayList<>();
+            walkFiles(root, suffix, (file, attrs) -> entries.add(
+                    root.relativize(file) + "|" + attrs.size() + "|" + attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS)));
+            Collections.sort(entries);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String entry : entries) {
+                digest.update(entry.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return entries.size() + "|" + new BigInteger(1, digest.digest()).toString(16);
+        } catch (IOException ex) {
+            throw new MojoExecutionException("IO problem: " + ex.toString(), ex);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new MojoExecutionException("Unable to digest source files", ex);
+        }
+    }
+
+    // reads the manifest, empty if there is none
+    private static List<String> readManifest(File manifestFile) throws MojoExecutionException {
+        try {
+            if (!manifestFile.isFile()) {
+                return Collections.emptyList();
+            }
+            return Files.readAllLines(manifestFile.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new MojoExecutionException("IO problem: " + ex.toString(), ex);
+        }
+    }
+
+    // writes the manifest
+    private static void writeManifest(File manifestFile, List<String> manifest) throws MojoExecutionException {
+        try {
+            Files.createDirectories(manifestFile.toPath().getParent());
+            Files.write(manifestFile.toPath(), manifest, StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new MojoExecutionException("IO problem: " + ex.toString(), ex);
+        }
+    }
+
+    // deletes the manifest, so a failed run is not treated as up to date
+    private static void deleteManifest(File manifestFile) throws MojoExecutionException {
+        try {
+            Files.deleteIfExists(manifestFile.toPath());
+        } catch (IOException ex) {
+            throw new MojoExecutionException("IO problem: " + ex.toString(), ex);
+        }
+    }
+
+    // walks the Java files in the root, skipping hidden directories as the generator does
+    static void walkJavaFiles(Path root, BiConsumer<Path, BasicFileAttributes> consumer) throws IOException {
+        walkFiles(root, ".java", consumer);
+    }
+
+    // walks the files with the suffix in the root, skipping hidden directories
+    // links are followed as the generator does, but a link back to a parent directory is not
+    private static void walkFiles(Path root, String suffix, BiConsumer<Path, BasicFileAttributes> consumer)
+            throws IOException {
+        Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(root) && dir.getFileName().toString().startsWith(".")) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && file.getFileName().toString().endsWith(suffix)) {
+                    consumer.accept(file, attrs);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException ex) throws IOException {
+                if (ex instanceof FileSystemLoopException) {
+                    return FileVisitResult.CONTINUE;
+                }
+                throw ex;
+            }
+        });
+    }
+
+    // loads the files known to have error markers from the last run
+    // the files are not known on the first run, such as after an IDE restart
+    void loadMessageFiles() {
+        @SuppressWarnings("unchecked")
+        Set<File> files = (Set<File>) buildContext.getValue(JODA_BEANS_MESSAGE_FILES);
+        lastMessageFiles = (files == null ? null : new LinkedHashSet<>(files));
+    }
+
+    // remove any error markers from the files about to be processed, which is the whole root or the changed files
+    // when the files with markers are known, only those files are updated, otherwise each changed file is
+    void removeMessages(File sourceDir, String[] changedFiles, boolean wholeRoot) throws MojoExecutionException {
+        Path root = normalize(sourceDir).toPath();
+        Set<File> toRemove = new LinkedHashSet<>();
+        if (lastMessageFiles == null) {
+            for (String changedFile : changedFiles) {
+                toRemove.add(normalize(new File(sourceDir, changedFile)));
+            }
+        } else if (wholeRoot) {
+            for (File file : lastMessageFiles) {
+                if (file.toPath().startsWith(root)) {
+                    toRemove.add(file);
+                }
+            }
+        } else {
+            for (String changedFile : changedFiles) {
+                File file = normalize(new File(sourceDir, changedFile));
+                if (lastMessageFiles.contains(file)) {
+                    toRemove.add(file);
+                }
+            }
+            // a message that could not be linked to a bean is added to the root
+            if (lastMessageFiles.contains(root.toFile())) {
+                toRemove.add(root.toFile());
+            }
+        }
+        for (File file : toRemove) {
+            buildContext.removeMessages(file);
+        }
+        if (lastMessageFiles != null) {
+            lastMessageFiles.removeAll(toRemove);
+        }
+        logDebug("Removed messages: " + toRemove.size() + " files in " + sourceDir);
+    }
+
+    // add the messages found by the tool in one pass, tracking the files so they can be removed next time
+    // the files with markers from the last run that were not processed keep their markers
+    void addMessages() {
+        Set<File> files = new LinkedHashSet<>();
+        if (lastMessageFiles != null) {
+            files.addAll(lastMessageFiles);
+        }
+        for (Message message : messages) {
+            buildContext.addMessage(
+                    message.file, message.line, 1,
+                    message.msg, BuildContext.SEVERITY_ERROR, message.cause);
+            files.add(message.file);
+        }
+        buildContext.setValue(JODA_BEANS_MESSAGE_FILES, files);
+        messageFiles = files;
+    }
+
+    // normalizes a file, so that files can be compared
+    private static File normalize(File file) {
+        return file.getAbsoluteFile().toPath().normalize().toFile();
+    }
+
+    // checks if the tool has found any messages
+    boolean hasMessages() {
+        return !messages.isEmpty();
+    }
+
+    // counts the messages found by the tool so far
+    int messageCount() {
+        return messages.size();
     }
 
     // actually run the tool using the specified args
     List<File> runToolHandleChanges(Class<?> toolClass, List<String> argsList, File baseDir, File classesDir)
             throws MojoExecutionException, MojoFailureException {
+        try {
+            return handleChanges(invoke(toolClass, argsList), baseDir, classesDir);
+        } catch (MojoFailureException ex) {
+            return handleToolFailure(ex);
+        }
+    }
+
+    // handles the files changed by the tool, which must be on the thread running the mojo
+    List<File> handleChanges(List<File> changedFiles, File baseDir, File classesDir) throws MojoExecutionException {
         try {
             String baseStr = baseDir.getCanonicalPath();
-            List<File> changedFiles = invoke(toolClass, argsList);
             Set<String> filesToRefresh = new LinkedHashSet<>();
             // mark each file as being in need of a refresh
+            // the generator only writes files whose content has changed, so these are the only files touched
+            // unchanged files keep their timestamp, keeping downstream incremental compilation incremental
             if (changedFiles.size() > 0) {
                 if (changedFiles.get(0) == null) {
                     filesToRefresh.add(baseDir.toString());
@@ -253,27 +656,34 @@ public abstract class AbstractJodaBeansMojo extends AbstractMojo {
             return changedFiles;
         } catch (IOException ex) {
             throw new MojoExecutionException("IO problem: " + ex.toString(), ex);
-        } catch (MojoFailureException ex) {
-            if (eclipse && buildContext.getValue(JODA_BEANS_MESSAGE_FILE) != null) {
-                return Collections.emptyList();  // avoid showing error in Eclipse pom that is reported in a file
-            } else {
-                throw ex;
-            }
         }
     }
 
-    // invokes the generator by reflection
-    private List<File> invoke(Class<?> toolClass, List<String> argsList) throws MojoExecutionException, MojoFailureException {
+    // handles failure of the tool
+    List<File> handleToolFailure(MojoFailureException ex) throws MojoFailureException {
+        if (eclipse && hasMessages()) {
+            return Collections.emptyList();  // avoid showing error in Eclipse pom that is reported in a file
+        } else {
+            throw ex;
+        }
+    }
+
+    // invokes the generator, the methods being found once for each generator class
+    // this may be called from multiple threads, so must not use the build context
+    List<File> invoke(Class<?> toolClass, List<String> argsList) throws MojoExecutionException, MojoFailureException {
         long start = System.nanoTime();
         try {
-            Method createFromArgsMethod = findCreateFromArgsMethod(toolClass);
-            Method processMethod = findProcessMethod(toolClass);
-            Object beanCodeGen = createBuilder(argsList, createFromArgsMethod);
-            if (processMethod.getReturnType() == Integer.TYPE) {
-                int count = invokeBuilderCountChanges(processMethod, beanCodeGen);
-                return Collections.nCopies(count, null);
+            BeanCodeGenInvoker invoker = BeanCodeGenInvoker.of(toolClass);
+            if (invoker.isProcessFiles()) {
+                logDebug("Using Joda-Beans v1.5 or later - processFiles()");
             } else {
-                return invokeBuilderListChanges(processMethod, beanCodeGen);
+                logDebug("Using Joda-Beans v1.4 or earlier - process()");
+            }
+            Object beanCodeGen = createBuilder(argsList, invoker);
+            try {
+                return invoker.process(beanCodeGen);
+            } catch (Throwable ex) {
+                throw handleFailure(ex);
             }
         } finally {
             long end = System.nanoTime();
@@ -281,78 +691,53 @@ public abstract class AbstractJodaBeansMojo extends AbstractMojo {
         }
     }
 
-    // finds the method to call by reflection
-    private Method findCreateFromArgsMethod(Class<?> toolClass) throws MojoExecutionException {
-        Method createFromArgsMethod = null;
-        try {
-            createFromArgsMethod = toolClass.getMethod("createFromArgs", String[].class);
-        } catch (Exception ex) {
-            throw new MojoExecutionException("Unable to find method BeanCodeGen.createFromArgs()");
+    // invokes the generator on a list of files
+    // a single generator is created if the generator allows it, otherwise the files are processed one at a time
+    // this may be called from multiple threads, so must not use the build context
+    List<File> invokeFiles(Class<?> toolClass, List<String> argsList, List<File> files)
+            throws MojoExecutionException, MojoFailureException {
+        BeanCodeGenInvoker invoker = BeanCodeGenInvoker.of(toolClass);
+        if (!invoker.isCreateForFiles()) {
+            List<File> changed = new ArrayList<>();
+            for (File file : files) {
+                List<String> args = new ArrayList<>(argsList);
+                args.add(file.toString());
+                changed.addAll(invoke(toolClass, args));
+            }
+            return changed;
         }
-        return createFromArgsMethod;
-    }
-
-    // finds the method to call by reflection
-    private Method findProcessMethod(Class<?> toolClass) throws MojoExecutionException {
-        Method processMethod = null;
+        long start = System.nanoTime();
         try {
-            processMethod = toolClass.getMethod("processFiles");
-            logDebug("Using Joda-Beans v1.5 or later - processFiles()");
-        } catch (Exception ex) {
+            Object beanCodeGen;
             try {
-                processMethod = toolClass.getMethod("process");
-                logDebug("Using Joda-Beans v1.4 or earlier - process()");
-            } catch (Exception ex2) {
-                throw new MojoExecutionException("Unable to find method BeanCodeGen.processFiles() or BeanCodeGen.process()");
+                beanCodeGen = invoker.createForFiles(argsList, files);
+            } catch (Throwable ex) {
+                throw new MojoFailureException("Invalid Joda-Beans Mojo configuration: " + ex.getMessage(), ex);
             }
+            try {
+                return invoker.process(beanCodeGen);
+            } catch (Throwable ex) {
+                throw handleFailure(ex);
+            }
+        } finally {
+            long end = System.nanoTime();
+            logDebug("Invoke: " + files.size() + " files, " + ((end - start) / 1000000L) + "ms");
         }
-        return processMethod;
     }
 
-    // creates the generator by reflection
-    private Object createBuilder(List<String> argsList, Method createFromArgsMethod) throws MojoExecutionException, MojoFailureException {
+    // creates the generator
+    private Object createBuilder(List<String> argsList, BeanCodeGenInvoker invoker) throws MojoFailureException {
         String[] args = argsList.toArray(new String[argsList.size()]);
         try {
-            return createFromArgsMethod.invoke(null, new Object[] { args });
-        } catch (IllegalArgumentException ex) {
-            throw new MojoExecutionException("Error invoking BeanCodeGen.createFromArgs()");
-        } catch (IllegalAccessException ex) {
-            throw new MojoExecutionException("Error invoking BeanCodeGen.createFromArgs()");
-        } catch (InvocationTargetException ex) {
-            throw new MojoFailureException("Invalid Joda-Beans Mojo configuration: " + ex.getCause().getMessage(), ex.getCause());
-        }
-    }
-
-    // invokes the builder
-    private int invokeBuilderCountChanges(Method processMethod, Object beanCodeGen) throws MojoExecutionException, MojoFailureException {
-        try {
-            return (Integer) processMethod.invoke(beanCodeGen);
-        } catch (IllegalArgumentException ex) {
-            throw new MojoExecutionException("Error invoking BeanCodeGen.process()");
-        } catch (IllegalAccessException ex) {
-            throw new MojoExecutionException("Error invoking BeanCodeGen.process()");
-        } catch (InvocationTargetException ex) {
-            throw handleFailure(ex);
+            return invoker.createFromArgs(args);
+        } catch (Throwable ex) {
+            throw new MojoFailureException("Invalid Joda-Beans Mojo configuration: " + ex.getMessage(), ex);
         }
     }
 
-    // invokes the builder
-    @SuppressWarnings("unchecked")
-    private List<File> invokeBuilderListChanges(Method processMethod, Object beanCodeGen) throws MojoExecutionException, MojoFailureException {
-        try {
-            return (List<File>) processMethod.invoke(beanCodeGen);
-        } catch (IllegalArgumentException ex) {
-            throw new MojoExecutionException("Error invoking BeanCodeGen.process()");
-        } catch (IllegalAccessException ex) {
-            throw new MojoExecutionException("Error invoking BeanCodeGen.process()");
-        } catch (InvocationTargetException ex) {
-            throw handleFailure(ex);
-        }
-    }
-
-    // handles failure in reflection
-    private MojoFailureException handleFailure(InvocationTargetException ex) throws MojoFailureException {
-        String msg = ex.getCause().getMessage();
+    // handles failure of the generator, including errors such as NoClassDefFoundError
+    private MojoFailureException handleFailure(Throwable ex) throws MojoFailureException {
+        String msg = ex.getMessage();
         File file = new File(getSourceDir());
         int line = 1;
         try {
@@ -368,28 +753,25 @@ public abstract class AbstractJodaBeansMojo extends AbstractMojo {
                     File sourceFile = new File(msg.substring("Error in bean: ".length()));
                     if (sourceFile.exists()) {
                         file = sourceFile;
-                        if (ex.getCause().getCause() != null) {
-                            msg = ex.getCause().getCause().getMessage();
-                            if (ex.getCause().getCause().getCause() != null) {
-                                msg += ": " + ex.getCause().getCause().getCause().getMessage();
+                        if (ex.getCause() != null) {
+                            msg = ex.getCause().getMessage();
+                            if (ex.getCause().getCause() != null) {
+                                msg += ": " + ex.getCause().getCause().getMessage();
                             }
                         }
                     }
                 }
-            } else if (ex.getCause().getCause() != null) {
-                msg += ": " + ex.getCause().getCause().getMessage();
-                if (ex.getCause().getCause().getCause() != null) {
-                    msg += ": " + ex.getCause().getCause().getCause().getMessage();
+            } else if (ex.getCause() != null) {
+                msg += ": " + ex.getCause().getMessage();
+                if (ex.getCause().getCause() != null) {
+                    msg += ": " + ex.getCause().getCause().getMessage();
                 }
             }
         } catch (Exception unexpected) {
             // ignore and use standard messages
         }
-        buildContext.setValue(JODA_BEANS_MESSAGE_FILE, file);
-        buildContext.addMessage(
-                        file.getAbsoluteFile(), line + 1, 1,
-                        msg, BuildContext.SEVERITY_ERROR, ex.getCause());
-        return new MojoFailureException("Error while running Joda-Beans tool: " + msg, ex.getCause());
+        messages.add(new Message(normalize(file), line + 1, msg, ex));
+        return new MojoFailureException("Error while running Joda-Beans tool: " + msg, ex);
     }
 
     // obtains the classloader from a set of file paths
@@ -421,6 +803,11 @@ public abstract class AbstractJodaBeansMojo extends AbstractMojo {
         }
     }
 
+    // join the roots for logging
+    static String join(List<File> roots) {
+        return roots.stream().map(File::toString).collect(Collectors.joining(", "));
+    }
+
     // log to info
     void logInfo(String msg) throws MojoExecutionException {
         getLog().info(msg);
@@ -450,4 +837,20 @@ public abstract class AbstractJodaBeansMojo extends AbstractMojo {
 //        }
     }
 
+    //-----------------------------------------------------------------------
+    // a message to be added to a file
+    private static final class Message {
+        private final File file;
+        private final int line;
+        private final String msg;
+        private final Throwable cause;
+
+        private Message(File file, int line, String msg, Throwable cause) {
+            this.file = file;
+            this.line = line;
+            this.msg = msg;
+            this.cause = cause;
+        }
+    }
+
 }
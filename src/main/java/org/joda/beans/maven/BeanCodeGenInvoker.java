@@ -0,0 +1,340 @@
+/*
+ *  Copyright 2013-present, Stephen Colebourne
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.joda.beans.maven;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Invokes the Joda-Beans generator, {@code BeanCodeGen}, which is loaded in a separate class loader.
+ * <p>
+ * The methods are found once for each generator class and cached as method handles.
+ * <p>
+ * Joda-Beans v2.x allows a generator to be created for a list of files,
+ * using the public constructor and {@code BeanGenConfig}. The arguments are then
+ * interpreted here, in the same way as {@code createFromArgs(String[])}.
+ * As the defaults of the arguments may change, this is only done for versions
+ * where the output has been tested to match.
+ */
+final class BeanCodeGenInvoker {
+
+    /**
+     * The invokers, keyed by generator class.
+     */
+    private static final ClassValue<BeanCodeGenInvoker> INVOKERS = new ClassValue<BeanCodeGenInvoker>() {
+        @Override
+        protected BeanCodeGenInvoker computeValue(Class<?> toolClass) {
+            return new BeanCodeGenInvoker(toolClass);
+        }
+    };
+    /**
+     * The versions where the arguments are known to be interpreted in the same way as {@code createFromArgs(String[])}.
+     */
+    private static final Set<String> VERIFIED_VERSIONS = Collections.singleton("2.8.1");
+    /**
+     * Adapts the result of the v1.4 API to a list.
+     */
+    private static final MethodHandle UNKNOWN_FILES;
+    static {
+        try {
+            UNKNOWN_FILES = MethodHandles.lookup().findStatic(
+                    BeanCodeGenInvoker.class, "unknownFiles", MethodType.methodType(List.class, int.class));
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    /**
+     * The handle for {@code createFromArgs(String[])}, null if not found.
+     */
+    private final MethodHandle createFromArgs;
+    /**
+     * The handle for {@code processFiles()} or {@code process()}, null if not found.
+     */
+    private final MethodHandle process;
+    /**
+     * Whether the v1.5 API, {@code processFiles()}, was found.
+     */
+    private final boolean processFiles;
+    /**
+     * The handle for the constructor taking a list of files, null if not found.
+     */
+    private final MethodHandle constructor;
+    /**
+     * The handle for {@code BeanGenConfig.parse(String)}, null if not found.
+     */
+    private final MethodHandle parseConfig;
+    /**
+     * The handles for the {@code BeanGenConfig} setters, null if not found.
+     */
+    private final MethodHandle setIndent;
+    private final MethodHandle setPrefix;
+    private final MethodHandle setEol;
+    private final MethodHandle setGeneratedAnno;
+    /**
+     * Whether the generator version is one where the arguments are known to be interpreted correctly.
+     */
+    private final boolean verifiedVersion;
+
+    //-----------------------------------------------------------------------
+    /**
+     * Obtains the invoker for the generator class.
+     *
+     * @param toolClass  the generator class, not null
+     * @return the invoker, not null
+     * @throws MojoExecutionException if the generator class does not have the expected methods
+     */
+    static BeanCodeGenInvoker of(Class<?> toolClass) throws MojoExecutionException {
+        BeanCodeGenInvoker invoker = INVOKERS.get(toolClass);
+        if (invoker.createFromArgs == null) {
+            throw new MojoExecutionException("Unable to find method BeanCodeGen.createFromArgs()");
+        }
+        if (invoker.process == null) {
+            throw new MojoExecutionException("Unable to find method BeanCodeGen.processFiles() or BeanCodeGen.process()");
+        }
+        return invoker;
+    }
+
+    // finds the methods, avoiding exceptions for the expected case where a method does not exist
+    private BeanCodeGenInvoker(Class<?> toolClass) {
+        Method createFromArgsMethod = null;
+        Method processFilesMethod = null;
+        Method processMethod = null;
+        Constructor<?> constructorMethod = null;
+        for (Constructor<?> candidate : toolClass.getConstructors()) {
+            Class<?>[] types = candidate.getParameterTypes();
+            if (types.length == 4 && types[0] == List.class && types[1].getSimpleName().equals("BeanGenConfig") &&
+                    types[2] == Integer.TYPE && types[3] == Boolean.TYPE) {
+                constructorMethod = candidate;
+            }
+        }
+        for (Method method : toolClass.getMethods()) {
+            if (method.getName().equals("createFromArgs") && Modifier.isStatic(method.getModifiers()) &&
+                    method.getParameterCount() == 1 && method.getParameterTypes()[0] == String[].class) {
+                createFromArgsMethod = method;
+            } else if (method.getName().equals("processFiles") && method.getParameterCount() == 0 &&
+                    method.getReturnType() == List.class) {
+                processFilesMethod = method;
+            } else if (method.getName().equals("process") && method.getParameterCount() == 0 &&
+                    method.getReturnType() == Integer.TYPE) {
+                processMethod = method;
+            }
+        }
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        MethodHandle create = null;
+        MethodHandle proc = null;
+        MethodHandle[] batch = new MethodHandle[6];
+        try {
+            if (createFromArgsMethod != null) {
+                create = lookup.unreflect(createFromArgsMethod)
+                        .asType(MethodType.methodType(Object.class, String[].class));
+            }
+            if (processFilesMethod != null) {
+                proc = lookup.unreflect(processFilesMethod)
+                        .asType(MethodType.methodType(List.class, Object.class));
+            } else if (processMethod != null) {
+                proc = MethodHandles.filterReturnValue(lookup.unreflect(processMethod), UNKNOWN_FILES)
+                        .asType(MethodType.methodType(List.class, Object.class));
+            }
+            if (constructorMethod != null && proc != null) {
+                batch = findBatchHandles(lookup, constructorMethod);
+            }
+        } catch (IllegalAccessException ex) {
+            // leave as not found
+        }
+        this.createFromArgs = create;
+        this.process = proc;
+        this.processFiles = (processFilesMethod != null && proc != null);
+        this.constructor = batch[0];
+        this.parseConfig = batch[1];
+        this.setIndent = batch[2];
+        this.setPrefix = batch[3];
+        this.setEol = batch[4];
+        this.setGeneratedAnno = batch[5];
+        Package pkg = toolClass.getPackage();
+        this.verifiedVersion = (pkg != null && VERIFIED_VERSIONS.contains(pkg.getImplementationVersion()));
+    }
+
+    // finds the constructor and the config methods, all null if any are not found
+    private static MethodHandle[] findBatchHandles(MethodHandles.Lookup lookup, Constructor<?> constructorMethod)
+            throws IllegalAccessException {
+
+        Class<?> configClass = constructorMethod.getParameterTypes()[1];
+        MethodHandle[] handles = new MethodHandle[6];
+        handles[0] = lookup.unreflectConstructor(constructorMethod)
+                .asType(MethodType.methodType(Object.class, List.class, Object.class, int.class, boolean.class));
+        for (Method method : configClass.getMethods()) {
+            boolean isStatic = Modifier.isStatic(method.getModifiers());
+            Class<?>[] types = method.getParameterTypes();
+            if (method.getName().equals("parse") && isStatic && types.length == 1 && types[0] == String.class) {
+                handles[1] = lookup.unreflect(method).asType(MethodType.methodType(Object.class, String.class));
+            } else if (method.getName().equals("setIndent") && !isStatic && types.length == 1 && types[0] == String.class) {
+                handles[2] = lookup.unreflect(method).asType(MethodType.methodType(void.class, Object.class, String.class));
+            } else if (method.getName().equals("setPrefix") && !isStatic && types.length == 1 && types[0] == String.class) {
+                handles[3] = lookup.unreflect(method).asType(MethodType.methodType(void.class, Object.class, String.class));
+            } else if (method.getName().equals("setEol") && !isStatic && types.length == 1 && types[0] == String.class) {
+                handles[4] = lookup.unreflect(method).asType(MethodType.methodType(void.class, Object.class, String.class));
+            } else if (method.getName().equals("setGeneratedAnno") && !isStatic && types.length == 1 && types[0] == Boolean.TYPE) {
+                handles[5] = lookup.unreflect(method).asType(MethodType.methodType(void.class, Object.class, boolean.class));
+            }
+        }
+        for (MethodHandle handle : handles) {
+            if (handle == null) {
+                return new MethodHandle[6];
+            }
+        }
+        return handles;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Checks if the generator has the v1.5 API, where the changed files are known.
+     *
+     * @return true if {@code processFiles()} is used, false if {@code process()} is used
+     */
+    boolean isProcessFiles() {
+        return processFiles;
+    }
+
+    /**
+     * Checks if a single generator can be created for a list of files.
+     * <p>
+     * This requires the constructor and config methods, and a version where the arguments are known
+     * to be interpreted in the same way as {@code createFromArgs(String[])}.
+     *
+     * @return true if {@link #createForFiles(List, List)} should be used
+     */
+    boolean isCreateForFiles() {
+        return hasCreateForFiles() && verifiedVersion;
+    }
+
+    // checks if the constructor and config methods were found
+    boolean hasCreateForFiles() {
+        return constructor != null;
+    }
+
+    /**
+     * Creates the generator from the arguments.
+     *
+     * @param args  the arguments, not null
+     * @return the generator, not null
+     * @throws Throwable if the generator throws an exception or error
+     */
+    Object createFromArgs(String[] args) throws Throwable {
+        return createFromArgs.invokeExact(args);
+    }
+
+    /**
+     * Creates a generator for a list of files, interpreting the arguments as {@code createFromArgs(String[])} does.
+     * <p>
+     * The arguments must not include a file or directory, and files that do not exist are ignored.
+     *
+     * @param args  the arguments, not null
+     * @param files  the files to process, not null
+     * @return the generator, not null
+     * @throws Throwable if the arguments are invalid or the generator throws an exception or error
+     */
+    Object createForFiles(List<String> args, List<File> files) throws Throwable {
+        if (!hasCreateForFiles()) {
+            throw new IllegalStateException("Generator cannot be created for a list of files");
+        }
+        String indent = "    ";
+        String prefix = "";
+        String eol = System.lineSeparator();
+        String configName = "guava";
+        boolean generated = false;
+        int verbosity = 1;
+        boolean write = true;
+        for (String arg : args) {
+            if (arg.equals("-R")) {
+                // the files are listed
+            } else if (arg.startsWith("-indent=tab")) {
+                indent = "\t";
+            } else if (arg.startsWith("-indent=")) {
+                indent = "          ".substring(0, Integer.parseInt(arg.substring(8)));
+            } else if (arg.startsWith("-prefix=")) {
+                prefix = arg.substring(8);
+            } else if (arg.startsWith("-eol=")) {
+                eol = parseEol(arg.substring(5));
+            } else if (arg.equals("-generated")) {
+                generated = true;
+            } else if (arg.startsWith("-config=")) {
+                configName = arg.substring(8);
+            } else if (arg.startsWith("-verbose=")) {
+                verbosity = Integer.parseInt(arg.substring(9));
+            } else if (arg.equals("-nowrite")) {
+                write = false;
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+        Object config = parseConfig.invokeExact(configName);
+        setIndent.invokeExact(config, indent);
+        setPrefix.invokeExact(config, prefix);
+        setEol.invokeExact(config, eol);
+        setGeneratedAnno.invokeExact(config, generated);
+        List<File> existing = files.stream().filter(File::isFile).collect(Collectors.toList());
+        return constructor.invokeExact(existing, config, verbosity, write);
+    }
+
+    // interprets the end of line argument
+    private static String parseEol(String eol) {
+        switch (eol) {
+            case "lf":
+                return "\n";
+            case "crlf":
+                return "\r\n";
+            case "cr":
+                return "\r";
+            case "system":
+                return System.lineSeparator();
+            default:
+                throw new IllegalArgumentException("Value of 'eol' must be one of: 'lf', 'crlf', 'cr', 'system'");
+        }
+    }
+
+    /**
+     * Runs the generator.
+     * <p>
+     * With the v1.4 API the changed files are unknown, and the list contains one null for each changed file.
+     *
+     * @param beanCodeGen  the generator, not null
+     * @return the changed files, not null
+     * @throws Throwable if the generator throws an exception or error
+     */
+    @SuppressWarnings("unchecked")
+    List<File> process(Object beanCodeGen) throws Throwable {
+        return (List<File>) process.invokeExact(beanCodeGen);
+    }
+
+    // adapts the count of changed files
+    @SuppressWarnings("unused")
+    private static List<File> unknownFiles(int count) {
+        return Collections.nCopies(count, null);
+    }
+
+}
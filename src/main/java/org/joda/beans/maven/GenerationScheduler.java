@@ -0,0 +1,186 @@
+/*
+ *  Copyright 2013-present, Stephen Colebourne
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.joda.beans.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/**
+ * Chooses how to run the generator for a source root, based on the measured cost of earlier runs.
+ * <p>
+ * The generator can be run on the changed files, split into batches that run in parallel,
+ * or once for the whole directory. The costs are remembered in a file between runs.
+ * Until both costs are known, a single changed file is run on its own and anything more runs the whole directory,
+ * except that batches are tried once to measure them.
+ */
+final class GenerationScheduler {
+
+    /**
+     * Indicates that the whole directory should be processed.
+     */
+    static final int DIRECTORY = 0;
+    /**
+     * Key for the cost per file of processing files in a batch.
+     */
+    private static final String FILE_MILLIS = "file.millis";
+    /**
+     * Key for the cost per file of processing a whole directory.
+     */
+    private static final String DIRECTORY_MILLIS = "directory.millis";
+    /**
+     * Key prefix for the number of files in a root.
+     */
+    private static final String ROOT_FILES = "files.";
+    /**
+     * The weight of the latest measurement.
+     */
+    private static final double WEIGHT = 0.5d;
+
+    /**
+     * The file holding the costs.
+     */
+    private final File file;
+    /**
+     * The costs.
+     */
+    private final Properties costs;
+    /**
+     * The number of processors available.
+     */
+    private final int cores;
+
+    //-----------------------------------------------------------------------
+    /**
+     * Loads the scheduler, using the costs in the file if it exists.
+     *
+     * @param file  the file holding the costs, not null
+     * @param cores  the number of processors available
+     * @return the scheduler, not null
+     * @throws IOException if an IO error occurs
+     */
+    static GenerationScheduler load(File file, int cores) throws IOException {
+        Properties costs = new Properties();
+        if (file.isFile()) {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                costs.load(in);
+            }
+        }
+        return new GenerationScheduler(file, costs, cores);
+    }
+
+    // restricted constructor
+    GenerationScheduler(File file, Properties costs, int cores) {
+        this.file = file;
+        this.costs = costs;
+        this.cores = Math.max(cores, 1);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Chooses how to process the changed files in a root.
+     *
+     * @param root  the source root, not null
+     * @param changedFiles  the number of changed files, one or more
+     * @param allChanged  whether every file in the root is known to have changed
+     * @return the number of batches to split the files into, or {@link #DIRECTORY} to process the whole directory
+     */
+    int plan(File root, int changedFiles, boolean allChanged) {
+        int batches = Math.min(cores, changedFiles);
+        if (changedFiles == 1) {
+            return batches;
+        }
+        double fileMillis = cost(FILE_MILLIS);
+        double directoryMillis = cost(DIRECTORY_MILLIS);
+        int rootFiles = (allChanged ? changedFiles : (int) cost(ROOT_FILES + root));
+        if (directoryMillis < 0 || rootFiles < 0) {
+            return DIRECTORY;
+        }
+        if (fileMillis < 0) {
+            return batches;
+        }
+        double fileEstimate = ((changedFiles + batches - 1) / batches) * fileMillis;
+        double directoryEstimate = rootFiles * directoryMillis;
+        return (fileEstimate < directoryEstimate ? batches : DIRECTORY);
+    }
+
+    /**
+     * Records the cost of processing the whole directory.
+     *
+     * @param root  the source root, not null
+     * @param rootFiles  the number of files in the root, negative if not known, when the last known number is used
+     * @param millis  the elapsed time
+     */
+    void recordDirectory(File root, int rootFiles, long millis) {
+        if (rootFiles > 0) {
+            costs.setProperty(ROOT_FILES + root, Integer.toString(rootFiles));
+        }
+        double knownFiles = cost(ROOT_FILES + root);
+        if (knownFiles > 0) {
+            record(DIRECTORY_MILLIS, millis / knownFiles);
+        }
+    }
+
+    /**
+     * Records the cost of processing files in batches.
+     *
+     * @param changedFiles  the number of files processed
+     * @param batches  the number of batches
+     * @param millis  the elapsed time
+     */
+    void recordFiles(int changedFiles, int batches, long millis) {
+        // the elapsed time is that of the largest batch
+        int largestBatch = (changedFiles + batches - 1) / batches;
+        record(FILE_MILLIS, ((double) millis) / largestBatch);
+    }
+
+    /**
+     * Saves the costs.
+     *
+     * @throws IOException if an IO error occurs
+     */
+    void save() throws IOException {
+        Files.createDirectories(file.toPath().getParent());
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            costs.store(out, "Joda-Beans generation costs");
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    // gets a cost, negative if not known
+    private double cost(String key) {
+        String value = costs.getProperty(key);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    // records a cost, as a moving average
+    private void record(String key, double value) {
+        double previous = cost(key);
+        double updated = (previous < 0 ? value : WEIGHT * value + (1 - WEIGHT) * previous);
+        costs.setProperty(key, Double.toString(updated));
+    }
+
+}
@@ -20,6 +20,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -58,6 +59,12 @@ public class JodaBeansGenerateNoResolveMojo extends AbstractJodaBeansGenerateMoj
     @Parameter(defaultValue = "${localRepository}", readonly = true, required = true)
     private ArtifactRepository localRepo;
 
+    @Override
+    protected List<String> describeGenerator() {
+        // the classpath is not resolved until needed, so the version is used instead
+        return Collections.singletonList("version=" + jodaBeansVersion);
+    }
+
     @Override
     synchronized ClassLoader obtainClassLoader() throws MojoExecutionException {
         ClassLoader cached = classLoaderCache.get(jodaBeansVersion);
@@ -18,7 +18,6 @@ package org.joda.beans.maven;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -53,44 +52,59 @@ public class JodaBeansValidateMojo extends AbstractJodaBeansMojo {
     }
 
     @Override
-    protected void runTool(
+    protected boolean runTool(
             Class<?> toolClass,
             List<String> argsList,
             BuildContext buildContext) throws MojoExecutionException, MojoFailureException {
 
-        Path sourceDirPath = Paths.get(getSourceDir());
-        logInfo("Joda-Bean validator started, directory: " + getSourceDir() +
-                        (getTestSourceDir().length() == 0 ? "" : ", test directory:" + getTestSourceDir()));
-        List<File> changedFiles = runTool(toolClass, argsList);
-        if (changedFiles.size() > 0) {
+        List<File> sourceRoots = getSourceRoots();
+        List<File> testRoots = getTestSourceRoots();
+        logInfo("Joda-Bean validator started, directory: " + join(sourceRoots) +
+                        (testRoots.isEmpty() ? "" : ", test directory:" + join(testRoots)));
+        List<String> changedFiles = new ArrayList<>();
+        int changedFileCount = 0;
+        // invoke main source
+        for (File sourceDir : sourceRoots) {
+            changedFileCount += runRoot(toolClass, argsList, sourceDir, new File(getClassesDir()), changedFiles);
+        }
+        // optionally invoke test source
+        for (File sourceDir : testRoots) {
+            changedFileCount += runRoot(toolClass, argsList, sourceDir, new File(getTestClassesDir()), changedFiles);
+        }
+        if (changedFileCount > 0) {
             if (stopOnError) {
-                for (File file : changedFiles) {
-                    getLog().warn("Joda-Bean needs to be re-generated: " + sourceDirPath.relativize(canonicalize(file).toPath()));
+                for (String file : changedFiles) {
+                    getLog().warn("Joda-Bean needs to be re-generated: " + file);
                 }
 
-                throw new MojoFailureException("Some Joda-Beans need to be re-generated (" + changedFiles.size() + " files)");
+                throw new MojoFailureException("Some Joda-Beans need to be re-generated (" + changedFileCount + " files)");
             }
-            logInfo("*** Joda-Bean validator found " + changedFiles.size() + " beans in need of generation ***");
-        } else {
-            logInfo("Joda-Bean validator completed");
+            logInfo("*** Joda-Bean validator found " + changedFileCount + " beans in need of generation ***");
+            return false;
         }
+        logInfo("Joda-Bean validator completed");
+        return true;
     }
 
-    private List<File> runTool(Class<?> toolClass, List<String> argsList) throws MojoExecutionException, MojoFailureException {
-        // invoke main source
-        argsList.add(getSourceDir());
-        List<File> changedFiles = new ArrayList<>();
-
-        List<File> productionFilesChanged = runToolHandleChanges(toolClass, argsList, new File(getSourceDir()), new File(getClassesDir()));
-        changedFiles.addAll(productionFilesChanged);
+    // invoke the tool on one source root, adding the changed files relative to the root
+    private int runRoot(
+            Class<?> toolClass,
+            List<String> argsList,
+            File sourceDir,
+            File classesDir,
+            List<String> changedFiles) throws MojoExecutionException, MojoFailureException {
 
-        // optionally invoke test source
-        if (getTestSourceDir().length() > 0) {
-            argsList.set(argsList.size() - 1, getTestSourceDir());
-            List<File> testFilesChanged = runToolHandleChanges(toolClass, argsList, new File(getTestSourceDir()), new File(getTestClassesDir()));
-            changedFiles.addAll(testFilesChanged);
+        removeMessages(sourceDir, new String[0], true);
+        List<String> args = new ArrayList<>(argsList);
+        args.add(sourceDir.toString());
+        List<File> rootChangedFiles = runToolHandleChanges(toolClass, args, sourceDir, classesDir);
+        Path sourceDirPath = canonicalize(sourceDir).toPath();
+        for (File file : rootChangedFiles) {
+            if (file != null) {
+                changedFiles.add(sourceDirPath.relativize(canonicalize(file).toPath()).toString());
+            }
         }
-        return changedFiles;
+        return rootChangedFiles.size();
     }
 
     private static File canonicalize(File file) throws MojoExecutionException {
@@ -0,0 +1,359 @@
+/*
+ *  Copyright 2013-present, Stephen Colebourne
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.joda.beans.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.joda.beans.gen.BeanCodeGen;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+import com.tngtech.java.junit.dataprovider.UseDataProvider;
+
+/**
+ * Test.
+ */
+@RunWith(DataProviderRunner.class)
+public class TestBeanCodeGenInvoker {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testProcessFiles() throws Throwable {
+        BeanCodeGenInvoker invoker = BeanCodeGenInvoker.of(V15.class);
+        assertTrue(invoker.isProcessFiles());
+        assertSame(invoker, BeanCodeGenInvoker.of(V15.class));
+        Object gen = invoker.createFromArgs(new String[] {"-R", "A.java"});
+        assertEquals(Arrays.asList(new File("A.java")), invoker.process(gen));
+    }
+
+    @Test
+    public void testProcess() throws Throwable {
+        BeanCodeGenInvoker invoker = BeanCodeGenInvoker.of(V14.class);
+        assertFalse(invoker.isProcessFiles());
+        Object gen = invoker.createFromArgs(new String[] {"-R", "dir"});
+        assertEquals(Arrays.asList(null, null), invoker.process(gen));
+    }
+
+    @Test
+    public void testExceptionsNotWrapped() throws Throwable {
+        BeanCodeGenInvoker invoker = BeanCodeGenInvoker.of(V15.class);
+        try {
+            invoker.createFromArgs(new String[0]);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertEquals("No arguments specified", ex.getMessage());
+        }
+        Object gen = invoker.createFromArgs(new String[] {"Bad.java"});
+        try {
+            invoker.process(gen);
+            fail();
+        } catch (IllegalStateException ex) {
+            assertEquals("Error in bean: Bad.java, Line: 1, Message: Bad", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testErrorsNotWrapped() throws Throwable {
+        BeanCodeGenInvoker invoker = BeanCodeGenInvoker.of(Broken.class);
+        try {
+            invoker.createFromArgs(new String[0]);
+            fail();
+        } catch (NoClassDefFoundError ex) {
+            assertEquals("org/joda/Missing", ex.getMessage());
+        }
+        Object gen = invoker.createFromArgs(new String[] {"A.java"});
+        try {
+            invoker.process(gen);
+            fail();
+        } catch (StackOverflowError ex) {
+            assertEquals("Too deep", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testErrorsReportedAsFailures() throws Exception {
+        JodaBeansGenerateMojo mojo = new JodaBeansGenerateMojo();
+        try {
+            mojo.invoke(Broken.class, Arrays.asList());
+            fail();
+        } catch (MojoFailureException ex) {
+            assertEquals("Invalid Joda-Beans Mojo configuration: org/joda/Missing", ex.getMessage());
+        }
+        assertFalse(mojo.hasMessages());
+        try {
+            mojo.invoke(Broken.class, Arrays.asList("A.java"));
+            fail();
+        } catch (MojoFailureException ex) {
+            assertEquals("Error while running Joda-Beans tool: Too deep", ex.getMessage());
+            assertTrue(ex.getCause() instanceof StackOverflowError);
+        }
+        assertTrue(mojo.hasMessages());
+    }
+
+    @Test
+    public void testCreateForFiles() throws Throwable {
+        BeanCodeGenInvoker invoker = BeanCodeGenInvoker.of(V28.class);
+        assertTrue(invoker.hasCreateForFiles());
+        // the stub is not a version known to interpret the arguments in the same way
+        assertFalse(invoker.isCreateForFiles());
+        File file = temp.newFile("A.java");
+        List<File> files = Arrays.asList(file, new File(temp.getRoot(), "Deleted.java"));
+        V28 gen = (V28) invoker.createForFiles(
+                Arrays.asList("-R", "-indent=2", "-prefix=_", "-eol=lf", "-config=jdk", "-generated", "-verbose=3", "-nowrite"),
+                files);
+        assertEquals(Arrays.asList(file), invoker.process(gen));
+        assertEquals("jdk", gen.config.name);
+        assertEquals("  ", gen.config.indent);
+        assertEquals("_", gen.config.prefix);
+        assertEquals("\n", gen.config.eol);
+        assertTrue(gen.config.generated);
+        assertEquals(3, gen.verbosity);
+        assertFalse(gen.write);
+    }
+
+    @Test
+    public void testCreateForFilesDefaults() throws Throwable {
+        BeanCodeGenInvoker invoker = BeanCodeGenInvoker.of(V28.class);
+        V28 gen = (V28) invoker.createForFiles(Arrays.asList("-R", "-indent=tab"), Arrays.asList());
+        assertEquals("guava", gen.config.name);
+        assertEquals("\t", gen.config.indent);
+        assertEquals("", gen.config.prefix);
+        assertEquals(System.lineSeparator(), gen.config.eol);
+        assertFalse(gen.config.generated);
+        assertEquals(1, gen.verbosity);
+        assertTrue(gen.write);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateForFilesUnknownArgument() throws Throwable {
+        BeanCodeGenInvoker.of(V28.class).createForFiles(Arrays.asList("-style=light"), Arrays.asList());
+    }
+
+    @DataProvider
+    public static Object[][] dataArgs() {
+        return new Object[][] {
+            {Arrays.asList("-R")},
+            {Arrays.asList("-R", "-verbose=0")},
+            {Arrays.asList("-R", "-indent=2", "-eol=crlf", "-generated", "-verbose=0")},
+            {Arrays.asList("-R", "-indent=tab", "-eol=lf", "-config=jdk", "-verbose=0")},
+            {Arrays.asList("-R", "-prefix=_", "-eol=system", "-verbose=3")},
+            {Arrays.asList("-R", "-nowrite", "-verbose=0")},
+        };
+    }
+
+    // the output must not depend on whether the scheduler chose batches or the whole directory
+    @Test
+    @UseDataProvider("dataArgs")
+    public void testCreateForFilesMatchesCreateFromArgs(List<String> args) throws Throwable {
+        BeanCodeGenInvoker invoker = BeanCodeGenInvoker.of(BeanCodeGen.class);
+        assertTrue(invoker.isCreateForFiles());
+        File byArgs = writeBeans(temp.newFolder("args"));
+        File byFiles = writeBeans(temp.newFolder("files"));
+
+        List<File> changedByArgs = new ArrayList<>();
+        for (String name : BEANS) {
+            List<String> fileArgs = new ArrayList<>(args);
+            fileArgs.add(new File(byArgs, name).toString());
+            changedByArgs.addAll(invoker.process(invoker.createFromArgs(fileArgs.toArray(new String[0]))));
+        }
+        List<File> files = new ArrayList<>();
+        for (String name : BEANS) {
+            files.add(new File(byFiles, name));
+        }
+        List<File> changedByFiles = invoker.process(invoker.createForFiles(args, files));
+
+        assertEquals(names(changedByArgs), names(changedByFiles));
+        for (String name : BEANS) {
+            assertEquals(name, read(new File(byArgs, name)), read(new File(byFiles, name)));
+        }
+    }
+
+    @Test
+    public void testCreateForFilesNotAvailable() throws Exception {
+        assertFalse(BeanCodeGenInvoker.of(V15.class).isCreateForFiles());
+        assertFalse(BeanCodeGenInvoker.of(V14.class).isCreateForFiles());
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void testMissingMethods() throws Exception {
+        BeanCodeGenInvoker.of(String.class);
+    }
+
+    //-----------------------------------------------------------------------
+    private static final List<String> BEANS = Arrays.asList("ImmBean.java", "MutBean.java");
+
+    private static File writeBeans(File dir) throws IOException {
+        write(new File(dir, "ImmBean.java"), "package test;\n\n" +
+                "import java.util.List;\n\n" +
+                "import org.joda.beans.ImmutableBean;\n" +
+                "import org.joda.beans.gen.BeanDefinition;\n" +
+                "import org.joda.beans.gen.PropertyDefinition;\n\n" +
+                "@BeanDefinition\n" +
+                "public final class ImmBean implements ImmutableBean {\n\n" +
+                "    @PropertyDefinition(validate = \"notNull\")\n" +
+                "    private final String _name;\n" +
+                "    @PropertyDefinition\n" +
+                "    private final List<String> _tags;\n\n" +
+                "}\n");
+        write(new File(dir, "MutBean.java"), "package test;\n\n" +
+                "import org.joda.beans.Bean;\n" +
+                "import org.joda.beans.gen.BeanDefinition;\n" +
+                "import org.joda.beans.gen.PropertyDefinition;\n" +
+                "import org.joda.beans.impl.direct.DirectBean;\n\n" +
+                "@BeanDefinition\n" +
+                "public class MutBean extends DirectBean {\n\n" +
+                "    @PropertyDefinition\n" +
+                "    private int _count;\n\n" +
+                "}\n");
+        return dir;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static List<String> names(List<File> files) {
+        List<String> names = new ArrayList<>();
+        for (File file : files) {
+            names.add(file.getName());
+        }
+        return names;
+    }
+
+    public static class V15 {
+        private final String file;
+
+        public static V15 createFromArgs(String[] args) {
+            if (args.length == 0) {
+                throw new IllegalArgumentException("No arguments specified");
+            }
+            return new V15(args[args.length - 1]);
+        }
+
+        private V15(String file) {
+            this.file = file;
+        }
+
+        public List<File> processFiles() throws Exception {
+            if (file.startsWith("Bad")) {
+                throw new IllegalStateException("Error in bean: " + file + ", Line: 1, Message: Bad");
+            }
+            return Arrays.asList(new File(file));
+        }
+    }
+
+    public static class V14 {
+        public static V14 createFromArgs(String[] args) {
+            return new V14();
+        }
+
+        public int process() throws Exception {
+            return 2;
+        }
+    }
+
+    public static class V28 {
+        private final List<File> files;
+        private final BeanGenConfig config;
+        private final int verbosity;
+        private final boolean write;
+
+        public static V28 createFromArgs(String[] args) {
+            throw new UnsupportedOperationException();
+        }
+
+        public V28(List<File> files, BeanGenConfig config, int verbosity, boolean write) {
+            this.files = files;
+            this.config = config;
+            this.verbosity = verbosity;
+            this.write = write;
+        }
+
+        public List<File> processFiles() throws Exception {
+            return files;
+        }
+    }
+
+    public static class BeanGenConfig {
+        private final String name;
+        private String indent;
+        private String prefix;
+        private String eol;
+        private boolean generated;
+
+        public static BeanGenConfig parse(String name) {
+            return new BeanGenConfig(name);
+        }
+
+        private BeanGenConfig(String name) {
+            this.name = name;
+        }
+
+        public void setIndent(String indent) {
+            this.indent = indent;
+        }
+
+        public void setPrefix(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public void setEol(String eol) {
+            this.eol = eol;
+        }
+
+        public void setGeneratedAnno(boolean generated) {
+            this.generated = generated;
+        }
+    }
+
+    public static class Broken {
+        public static Broken createFromArgs(String[] args) {
+            if (args.length == 0) {
+                throw new NoClassDefFoundError("org/joda/Missing");
+            }
+            return new Broken();
+        }
+
+        public List<File> processFiles() throws Exception {
+            throw new StackOverflowError("Too deep");
+        }
+    }
+
+}
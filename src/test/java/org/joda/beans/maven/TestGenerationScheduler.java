@@ -0,0 +1,93 @@
+/*
+ *  Copyright 2013-present, Stephen Colebourne
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.joda.beans.maven;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import org.junit.Test;
+
+/**
+ * Test.
+ */
+public class TestGenerationScheduler {
+
+    private static final File ROOT = new File("src/main/java");
+
+    @Test
+    public void testNoHistory() {
+        GenerationScheduler test = new GenerationScheduler(new File("costs"), new Properties(), 4);
+        assertEquals(1, test.plan(ROOT, 1, false));
+        assertEquals(GenerationScheduler.DIRECTORY, test.plan(ROOT, 2, false));
+        assertEquals(GenerationScheduler.DIRECTORY, test.plan(ROOT, 100, true));
+    }
+
+    @Test
+    public void testTriesBatchesOnceDirectoryKnown() {
+        GenerationScheduler test = new GenerationScheduler(new File("costs"), new Properties(), 4);
+        test.recordDirectory(ROOT, 100, 1000);
+        assertEquals(4, test.plan(ROOT, 100, true));
+        assertEquals(2, test.plan(ROOT, 2, false));
+    }
+
+    @Test
+    public void testChoosesCheapest() {
+        GenerationScheduler test = new GenerationScheduler(new File("costs"), new Properties(), 4);
+        test.recordDirectory(ROOT, 100, 1000);  // 10ms per file
+        test.recordFiles(8, 4, 60);  // 30ms per file
+        // files: ceil(n / 4) * 30ms, directory: 100 * 10ms
+        assertEquals(4, test.plan(ROOT, 10, false));
+        assertEquals(4, test.plan(ROOT, 128, false));
+        assertEquals(GenerationScheduler.DIRECTORY, test.plan(ROOT, 140, false));
+        assertEquals(4, test.plan(ROOT, 100, true));
+    }
+
+    @Test
+    public void testUnknownRootSize() {
+        GenerationScheduler test = new GenerationScheduler(new File("costs"), new Properties(), 4);
+        test.recordDirectory(ROOT, 100, 1000);
+        test.recordFiles(1, 1, 30);
+        assertEquals(GenerationScheduler.DIRECTORY, test.plan(new File("src/test/java"), 10, false));
+    }
+
+    @Test
+    public void testDirectoryUsesLastKnownRootSize() {
+        GenerationScheduler test = new GenerationScheduler(new File("costs"), new Properties(), 4);
+        test.recordDirectory(ROOT, -1, 1000);
+        test.recordFiles(8, 4, 60);
+        assertEquals(GenerationScheduler.DIRECTORY, test.plan(ROOT, 10, false));
+        test.recordDirectory(ROOT, 100, 1000);  // 10ms per file
+        test.recordDirectory(ROOT, -1, 1000);
+        assertEquals(4, test.plan(ROOT, 128, false));
+        assertEquals(GenerationScheduler.DIRECTORY, test.plan(ROOT, 140, false));
+    }
+
+    @Test
+    public void testSaveLoad() throws Exception {
+        File file = new File(Files.createTempDirectory("joda-beans").toFile(), "state/costs.properties");
+        GenerationScheduler test = new GenerationScheduler(file, new Properties(), 4);
+        test.recordDirectory(ROOT, 100, 1000);
+        test.recordFiles(8, 4, 60);
+        test.save();
+        GenerationScheduler loaded = GenerationScheduler.load(file, 4);
+        assertEquals(4, loaded.plan(ROOT, 10, false));
+        assertEquals(GenerationScheduler.DIRECTORY, loaded.plan(ROOT, 140, false));
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ *  Copyright 2013-present, Stephen Colebourne
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.joda.beans.maven;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonatype.plexus.build.incremental.DefaultBuildContext;
+
+/**
+ * Test.
+ */
+public class TestMessageTracking {
+
+    private static final Set<String> BROKEN = Collections.synchronizedSet(new HashSet<>());
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File root;
+    private StubBuildContext context;
+
+    @Before
+    public void setUp() throws Exception {
+        root = temp.newFolder("java").getCanonicalFile();
+        context = new StubBuildContext();
+        BROKEN.clear();
+    }
+
+    @Test
+    public void testUnprocessedFileKeepsMarker() throws Exception {
+        BROKEN.add("A.java");
+        run(false, "A.java", "B.java");
+        assertEquals(Collections.singleton(file("A.java")), context.markers.keySet());
+
+        // only B is edited, so A is not processed and is still broken
+        run(false, "B.java");
+        assertEquals(Collections.singleton(file("A.java")), context.markers.keySet());
+        assertEquals(Collections.singleton(file("A.java")), context.getValue("joda-beans.message.files"));
+
+        BROKEN.clear();
+        run(false, "A.java");
+        assertEquals(Collections.emptySet(), context.markers.keySet());
+        assertEquals(Collections.emptySet(), context.getValue("joda-beans.message.files"));
+    }
+
+    @Test
+    public void testWholeRootClearsMarkers() throws Exception {
+        BROKEN.add("A.java");
+        run(false, "A.java", "B.java");
+        assertEquals(Collections.singleton(file("A.java")), context.markers.keySet());
+
+        BROKEN.clear();
+        run(true, "B.java");
+        assertEquals(Collections.emptySet(), context.markers.keySet());
+    }
+
+    @Test
+    public void testWholeRootKeepsMarkersOfStillBrokenFiles() throws Exception {
+        BROKEN.add("A.java");
+        BROKEN.add("B.java");
+        run(false, "A.java", "B.java");
+        BROKEN.remove("B.java");
+        run(true, "B.java");
+        assertEquals(Collections.singleton(file("A.java")), context.markers.keySet());
+        assertEquals(1, context.markers.get(file("A.java")).size());
+    }
+
+    @Test
+    public void testUnknownFilesRemovesChangedFiles() throws Exception {
+        // markers from before an IDE restart are not tracked
+        context.addMessage(file("A.java"), 1, 1, "Old", DefaultBuildContext.SEVERITY_ERROR, null);
+        context.addMessage(file("B.java"), 1, 1, "Old", DefaultBuildContext.SEVERITY_ERROR, null);
+        run(false, "B.java");
+        assertEquals(Collections.singleton(file("A.java")), context.markers.keySet());
+    }
+
+    //-----------------------------------------------------------------------
+    // runs the tool in the same way as the generate goal, on the changed files or the whole root
+    private void run(boolean wholeRoot, String... changedFiles) throws Exception {
+        JodaBeansGenerateMojo mojo = new JodaBeansGenerateMojo();
+        Field field = AbstractJodaBeansMojo.class.getDeclaredField("buildContext");
+        field.setAccessible(true);
+        field.set(mojo, context);
+
+        mojo.loadMessageFiles();
+        mojo.removeMessages(root, changedFiles, wholeRoot);
+        List<String> files = (wholeRoot ? Arrays.asList("A.java", "B.java") : Arrays.asList(changedFiles));
+        for (String changedFile : files) {
+            try {
+                mojo.invoke(Generator.class, Arrays.asList("-R", new File(root, changedFile).toString()));
+            } catch (MojoFailureException ex) {
+                // recorded as a message
+            }
+        }
+        mojo.addMessages();
+    }
+
+    private File file(String name) {
+        return new File(root, name);
+    }
+
+    //-----------------------------------------------------------------------
+    public static class Generator {
+        private final File file;
+
+        public static Generator createFromArgs(String[] args) {
+            return new Generator(new File(args[args.length - 1]));
+        }
+
+        private Generator(File file) {
+            this.file = file;
+        }
+
+        public List<File> processFiles() throws Exception {
+            if (BROKEN.contains(file.getName())) {
+                throw new IllegalStateException("Error in bean: " + file + ", Line: 1, Message: Bad");
+            }
+            return Collections.emptyList();
+        }
+    }
+
+    static class StubBuildContext extends DefaultBuildContext {
+        private final Map<File, List<String>> markers = new LinkedHashMap<>();
+        private final Map<String, Object> values = new HashMap<>();
+
+        @Override
+        public void addMessage(File file, int line, int column, String message, int severity, Throwable cause) {
+            markers.computeIfAbsent(file, f -> new ArrayList<>()).add(message);
+        }
+
+        @Override
+        public void removeMessages(File file) {
+            markers.remove(file);
+        }
+
+        @Override
+        public Object getValue(String key) {
+            return values.get(key);
+        }
+
+        @Override
+        public void setValue(String key, Object value) {
+            values.put(key, value);
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ *  Copyright 2013-present, Stephen Colebourne
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.joda.beans.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test.
+ */
+public class TestSourceDigest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Path root;
+
+    @Before
+    public void setUp() throws Exception {
+        root = temp.newFolder("java").toPath();
+        write(root.resolve("com/foo/A.java"), "class A {}");
+        write(root.resolve("com/foo/B.java"), "class B {}");
+    }
+
+    @Test
+    public void testUnchanged() throws Exception {
+        assertEquals(AbstractJodaBeansMojo.digestRoot(root), AbstractJodaBeansMojo.digestRoot(root));
+    }
+
+    @Test
+    public void testEdited() throws Exception {
+        String before = AbstractJodaBeansMojo.digestRoot(root);
+        write(root.resolve("com/foo/A.java"), "class A { int a; }");
+        assertNotEquals(before, AbstractJodaBeansMojo.digestRoot(root));
+    }
+
+    @Test
+    public void testTouched() throws Exception {
+        String before = AbstractJodaBeansMojo.digestRoot(root);
+        Path file = root.resolve("com/foo/A.java");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        assertNotEquals(before, AbstractJodaBeansMojo.digestRoot(root));
+    }
+
+    @Test
+    public void testAdded() throws Exception {
+        String before = AbstractJodaBeansMojo.digestRoot(root);
+        write(root.resolve("com/foo/C.java"), "class C {}");
+        assertNotEquals(before, AbstractJodaBeansMojo.digestRoot(root));
+    }
+
+    @Test
+    public void testDeleted() throws Exception {
+        String before = AbstractJodaBeansMojo.digestRoot(root);
+        Files.delete(root.resolve("com/foo/B.java"));
+        assertNotEquals(before, AbstractJodaBeansMojo.digestRoot(root));
+    }
+
+    @Test
+    public void testIgnored() throws Exception {
+        String before = AbstractJodaBeansMojo.digestRoot(root);
+        write(root.resolve("com/foo/notes.txt"), "notes");
+        write(root.resolve(".hidden/D.java"), "class D {}");
+        assertEquals(before, AbstractJodaBeansMojo.digestRoot(root));
+    }
+
+    @Test
+    public void testEditedInLinkedDirectory() throws Exception {
+        Path linked = temp.newFolder("linked").toPath();
+        write(linked.resolve("L.java"), "class L {}");
+        link(root.resolve("com/linked"), linked);
+        assertEquals(Arrays.asList("com/foo/A.java", "com/foo/B.java", "com/linked/L.java"), walk(root));
+        String before = AbstractJodaBeansMojo.digestRoot(root);
+        write(linked.resolve("L.java"), "class L { int a; }");
+        assertNotEquals(before, AbstractJodaBeansMojo.digestRoot(root));
+    }
+
+    @Test
+    public void testLinkCycle() throws Exception {
+        link(root.resolve("com/foo/loop"), root.resolve("com"));
+        assertEquals(Arrays.asList("com/foo/A.java", "com/foo/B.java"), walk(root));
+    }
+
+    @Test
+    public void testClasspathDirectoryEdited() throws Exception {
+        Path classes = temp.newFolder("joda-config", "classes").toPath();
+        write(classes.resolve("com/foo/custom.ini"), "[immutable.builder.types]");
+        String before = AbstractJodaBeansMojo.describeClasspathEntry(classes.toFile());
+        assertEquals(before, AbstractJodaBeansMojo.describeClasspathEntry(classes.toFile()));
+        write(classes.resolve("com/foo/custom.ini"), "[immutable.builder.types]\nFoo = Bar");
+        assertNotEquals(before, AbstractJodaBeansMojo.describeClasspathEntry(classes.toFile()));
+    }
+
+    @Test
+    public void testClasspathJarEdited() throws Exception {
+        Path jar = temp.newFile("joda-beans.jar").toPath();
+        write(jar, "jar");
+        String before = AbstractJodaBeansMojo.describeClasspathEntry(jar.toFile());
+        write(jar, "larger jar");
+        assertNotEquals(before, AbstractJodaBeansMojo.describeClasspathEntry(jar.toFile()));
+    }
+
+    //-----------------------------------------------------------------------
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void link(Path link, Path target) {
+        try {
+            Files.createSymbolicLink(link, target);
+        } catch (IOException | UnsupportedOperationException ex) {
+            Assume.assumeNoException(ex);
+        }
+    }
+
+    private static List<String> walk(Path root) throws IOException {
+        List<String> found = new ArrayList<>();
+        AbstractJodaBeansMojo.walkJavaFiles(root, (file, attrs) -> found.add(root.relativize(file).toString().replace('\\', '/')));
+        Collections.sort(found);
+        return found;
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ *  Copyright 2013-present, Stephen Colebourne
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.joda.beans.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test.
+ */
+public class TestSourceRoots {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File base;
+    private File main;
+    private File generated;
+
+    @Before
+    public void setUp() throws Exception {
+        base = temp.getRoot().getCanonicalFile();
+        main = mkdirs("src/main/java");
+        generated = mkdirs("target/generated-sources/annotations");
+    }
+
+    @Test
+    public void testDefaultSourceDir() {
+        List<File> roots = find(main.toString(), roots(main, generated), null, null);
+        assertEquals(Arrays.asList(main, generated), roots);
+    }
+
+    @Test
+    public void testMissingRootsDropped() {
+        List<File> roots = find(main.toString(), roots(main, new File(base, "src/main/missing")), null, null);
+        assertEquals(Arrays.asList(main), roots);
+    }
+
+    @Test
+    public void testExplicitSourceDirReplacesDefault() throws Exception {
+        File beans = mkdirs("src/main/java/com/foo/beans");
+        List<File> roots = find(beans.toString(), roots(main, generated), null, null);
+        assertEquals(Arrays.asList(beans, generated), roots);
+    }
+
+    @Test
+    public void testNestedRootDropped() throws Exception {
+        File nested = mkdirs("target/generated-sources/annotations/nested");
+        List<File> roots = find(main.toString(), roots(main, nested, generated), null, null);
+        assertEquals(Arrays.asList(main, generated), roots);
+    }
+
+    @Test
+    public void testIncludesExcludes() {
+        List<String> includes = Collections.singletonList("target/generated-sources/*");
+        assertEquals(Arrays.asList(generated), find(main.toString(), roots(main, generated), includes, null));
+        List<String> excludes = Collections.singletonList("target/**");
+        assertEquals(Arrays.asList(main), find(main.toString(), roots(main, generated), null, excludes));
+    }
+
+    @Test
+    public void testMatchesAny() {
+        String path = "target" + File.separator + "generated-sources" + File.separator + "annotations";
+        assertTrue(AbstractJodaBeansMojo.matchesAny(null, path, true));
+        assertFalse(AbstractJodaBeansMojo.matchesAny(Collections.emptyList(), path, false));
+        assertTrue(AbstractJodaBeansMojo.matchesAny(Arrays.asList("src/**", "target/generated-sources/*"), path, false));
+        assertTrue(AbstractJodaBeansMojo.matchesAny(Arrays.asList(" target\\** "), path, false));
+        assertFalse(AbstractJodaBeansMojo.matchesAny(Arrays.asList("target/*"), path, false));
+    }
+
+    //-----------------------------------------------------------------------
+    private List<File> find(String dirStr, List<String> projectRoots, List<String> includes, List<String> excludes) {
+        return AbstractJodaBeansMojo.findSourceRoots(base, dirStr, main.toString(), projectRoots, includes, excludes);
+    }
+
+    private File mkdirs(String path) {
+        File dir = new File(base, path);
+        dir.mkdirs();
+        return dir;
+    }
+
+    private static List<String> roots(File... roots) {
+        String[] paths = new String[roots.length];
+        for (int i = 0; i < roots.length; i++) {
+            paths[i] = roots[i].toString();
+        }
+        return Arrays.asList(paths);
+    }
+
+}